@@ -30,4 +30,31 @@ const PRODUCTS_API_URL = import.meta.env.VITE_PRODUCTS_API_URL as string;
 const SALES_API_URL = import.meta.env.VITE_SALES_API_URL as string;
 
 export const productsClient = axios.default.create({baseURL: PRODUCTS_API_URL});
-export const salesClient = axios.default.create({baseURL: SALES_API_URL});
\ No newline at end of file
+export const salesClient = axios.default.create({baseURL: SALES_API_URL});
+
+/**
+ * Después de una escritura (en productos o una venta, que descuenta stock) las lecturas de productos
+ * van al primario durante esta ventana, para que la UI vea sus propios cambios aunque las réplicas
+ * de lectura aún no los hayan aplicado. Debe cubrir el retraso tolerado (products.datasource.max-lag).
+ */
+const READ_PRIMARY_WINDOW_MS = 5000;
+const READ_PRIMARY_HEADER = "X-Read-Primary";
+let lastWriteAt = 0;
+
+function recordWrite(response: axios.AxiosResponse) {
+  const method = response.config.method?.toLowerCase() ?? "get";
+  if (method !== "get" && method !== "head") {
+    lastWriteAt = Date.now();
+  }
+  return response;
+}
+
+productsClient.interceptors.response.use(recordWrite);
+salesClient.interceptors.response.use(recordWrite);
+
+productsClient.interceptors.request.use(config => {
+  if (Date.now() - lastWriteAt < READ_PRIMARY_WINDOW_MS) {
+    config.headers.set(READ_PRIMARY_HEADER, "true");
+  }
+  return config;
+});
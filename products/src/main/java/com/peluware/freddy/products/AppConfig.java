@@ -1,9 +1,30 @@
 package com.peluware.freddy.products;
 
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.web.config.EnableSpringDataWebSupport;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
 
 @Configuration
+@RequiredArgsConstructor
 @EnableSpringDataWebSupport(pageSerializationMode = EnableSpringDataWebSupport.PageSerializationMode.VIA_DTO)
-public class AppConfig {
+public class AppConfig implements WebMvcConfigurer {
+
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    /**
+     * Registra Smile (JSON binario) para los clientes que lo soliciten con {@code Accept: application/x-jackson-smile}.
+     * Se agrega al final para que los navegadores, que aceptan cualquier tipo, sigan recibiendo JSON.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        var smileMapper = objectMapperBuilder.factory(new SmileFactory()).build();
+        converters.add(new MappingJackson2SmileHttpMessageConverter(smileMapper));
+    }
 }
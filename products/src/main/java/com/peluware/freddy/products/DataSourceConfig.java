@@ -0,0 +1,67 @@
+package com.peluware.freddy.products;
+
+import com.peluware.freddy.products.datasource.ReplicaProperties;
+import com.peluware.freddy.products.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+
+/**
+ * Fuentes de datos: el primario ({@code spring.datasource}) para escrituras y las réplicas
+ * ({@code products.datasource.replicas}) para las transacciones de solo lectura.
+ * <p>
+ * Como los pools se crean aquí, {@code spring.datasource.hikari.*} se aplica a mano a todos ellos; cada
+ * réplica puede ajustarse además con {@code products.datasource.replicas[n].hikari.*}.
+ */
+@Configuration
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class DataSourceConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource routingDataSource(DataSourceProperties properties, ReplicaProperties replicaProperties, Environment environment) {
+        var binder = Binder.get(environment);
+
+        var primary = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+
+        var replicas = new LinkedHashMap<String, DataSource>();
+        for (var replica : replicaProperties.getReplicas()) {
+            var name = "replica-" + replicas.size();
+            var dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(replica.getUrl())
+                    .username(replica.getUsername() != null ? replica.getUsername() : properties.determineUsername())
+                    .password(replica.getPassword() != null ? replica.getPassword() : properties.determinePassword())
+                    .build();
+            binder.bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+            binder.bind("products.datasource.replicas[" + replicas.size() + "].hikari", Bindable.ofInstance(dataSource));
+            dataSource.setPoolName(name);
+            dataSource.setReadOnly(true);
+            replicas.put(name, dataSource);
+        }
+
+        return new ReplicaRoutingDataSource(primary, replicas, replicaProperties.getMaxLag());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+        // La conexión física se obtiene en la primera sentencia, cuando ya se sabe si la transacción es de solo lectura
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
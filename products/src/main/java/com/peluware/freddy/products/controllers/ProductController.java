@@ -1,14 +1,18 @@
 package com.peluware.freddy.products.controllers;
 
 import com.peluware.freddy.products.dto.ProductDto;
+import com.peluware.freddy.products.dto.StockReservationDto;
+import com.peluware.freddy.products.dto.StockReservationResult;
 import com.peluware.freddy.products.models.Product;
 import com.peluware.freddy.products.services.ProductService;
 import com.peluware.springframework.crud.core.web.controllers.CrudController;
+import jakarta.validation.Valid;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import org.springframework.web.bind.annotation.CrossOrigin;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
 
 /**
  * Controlador REST para la gestión de productos.
@@ -20,4 +24,21 @@ import org.springframework.web.bind.annotation.RestController;
 @RequiredArgsConstructor
 public class ProductController implements CrudController<Product, ProductDto, Long> {
     private final ProductService service;
+
+    /**
+     * Reserva (descuenta) de forma atómica el stock de un lote de ventas; devuelve un resultado por reserva.
+     */
+    @PostMapping("/stock/reservations")
+    public List<StockReservationResult> reserveStock(@RequestBody List<@Valid StockReservationDto> reservations) {
+        return service.reserveStock(reservations);
+    }
+
+    /**
+     * Devuelve al stock las reservas aplicadas previamente, identificadas por su clave.
+     */
+    @PostMapping("/stock/releases")
+    public ResponseEntity<Void> releaseStock(@RequestBody List<@Valid StockReservationDto> reservations) {
+        service.releaseStock(reservations);
+        return ResponseEntity.noContent().build();
+    }
 }
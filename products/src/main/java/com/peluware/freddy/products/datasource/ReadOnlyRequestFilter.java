@@ -0,0 +1,55 @@
+package com.peluware.freddy.products.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Ejecuta las peticiones GET y HEAD dentro de una transacción de solo lectura para que sus consultas
+ * (listado, búsqueda y obtención por ID del CRUD) se envíen a las réplicas.
+ * <p>
+ * Con la cabecera {@value #PRIMARY_HEADER}: {@code true} las lecturas van al primario, lo que permite
+ * leer las propias escrituras o leer el stock vigente antes de reservarlo.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReadOnlyRequestFilter extends OncePerRequestFilter {
+
+    public static final String PRIMARY_HEADER = "X-Read-Primary";
+
+    private final PlatformTransactionManager transactionManager;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        var definition = new DefaultTransactionDefinition();
+        definition.setReadOnly(true);
+
+        ReplicaRoutingDataSource.setPrimaryReads(Boolean.parseBoolean(request.getHeader(PRIMARY_HEADER)));
+        try {
+            var status = transactionManager.getTransaction(definition);
+            try {
+                filterChain.doFilter(request, response);
+            } catch (IOException | ServletException | RuntimeException e) {
+                transactionManager.rollback(status);
+                throw e;
+            }
+            transactionManager.commit(status);
+        } finally {
+            ReplicaRoutingDataSource.setPrimaryReads(false);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.peluware.freddy.products.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuración de las réplicas de solo lectura ({@code products.datasource.*}).
+ */
+@Data
+@ConfigurationProperties("products.datasource")
+public class ReplicaProperties {
+
+    /**
+     * Réplicas a las que se envían las lecturas; sin réplicas todas las consultas van al primario.
+     */
+    private List<Replica> replicas = new ArrayList<>();
+
+    /**
+     * Retraso de replicación tolerado antes de dejar de enviar lecturas a una réplica.
+     */
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    @Data
+    public static class Replica {
+        private String url;
+        /**
+         * Si no se indica se usa el del primario.
+         */
+        private String username;
+        /**
+         * Si no se indica se usa la del primario.
+         */
+        private String password;
+    }
+}
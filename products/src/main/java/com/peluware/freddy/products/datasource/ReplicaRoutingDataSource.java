@@ -0,0 +1,199 @@
+package com.peluware.freddy.products.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Envía las transacciones de solo lectura a las réplicas (round-robin) y todo lo demás al primario.
+ * Las réplicas cuyo retraso de replicación supera el tolerado se excluyen hasta que se pongan al día.
+ * <p>
+ * El retraso se mide contra el primario: en cada verificación se registra la posición actual de su WAL,
+ * y el retraso de una réplica es el tiempo desde la primera posición registrada que aún no aplicó. Así una
+ * réplica desconectada o detenida acumula retraso en cuanto el primario recibe escrituras, y una réplica
+ * sin nada pendiente está al día aunque no haya escrituras recientes.
+ * <p>
+ * Debe usarse detrás de un {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * para que la conexión se resuelva cuando ya se conoce si la transacción es de solo lectura.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    public static final String PRIMARY = "primary";
+
+    private static final String PRIMARY_LSN_QUERY = "SELECT pg_wal_lsn_diff(pg_current_wal_lsn(), '0/0')";
+    /**
+     * Una base que no está en recuperación no es una réplica en streaming (p. ej. una réplica promovida o
+     * una base independiente en pruebas) y no tiene WAL pendiente que medir.
+     */
+    private static final String REPLAY_LSN_QUERY = """
+            SELECT pg_is_in_recovery(), COALESCE(pg_wal_lsn_diff(pg_last_wal_replay_lsn(), '0/0'), 0)
+            """;
+    private static final ThreadLocal<Boolean> PRIMARY_READS = ThreadLocal.withInitial(() -> false);
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final Duration maxLag;
+    private final AtomicInteger counter = new AtomicInteger();
+    private final Deque<LsnSample> primarySamples = new ArrayDeque<>();
+    private volatile List<String> availableReplicas;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration maxLag) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.maxLag = maxLag;
+        this.availableReplicas = List.copyOf(replicas.keySet());
+
+        var targets = new HashMap<Object, Object>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    /**
+     * Fuerza (o deja de forzar) las lecturas del hilo actual al primario, p. ej. para leer las propias escrituras.
+     */
+    public static void setPrimaryReads(boolean primaryReads) {
+        if (primaryReads) {
+            PRIMARY_READS.set(true);
+        } else {
+            PRIMARY_READS.remove();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || PRIMARY_READS.get()) {
+            return PRIMARY;
+        }
+        var available = availableReplicas;
+        if (available.isEmpty()) {
+            return PRIMARY;
+        }
+        return available.get(Math.floorMod(counter.getAndIncrement(), available.size()));
+    }
+
+    @Scheduled(fixedDelayString = "${products.datasource.lag-check-interval:5s}")
+    public synchronized void checkReplicationLag() {
+        if (replicas.isEmpty()) {
+            return;
+        }
+        try {
+            recordPrimarySample(Instant.now(), primaryLsn());
+        } catch (SQLException e) {
+            // Sin el primario no hay referencia para medir, se mantiene la disponibilidad anterior
+            log.warn("No se pudo consultar la posición del WAL del primario: {}", e.getMessage());
+            return;
+        }
+
+        var previous = availableReplicas;
+        var available = new ArrayList<String>();
+        replicas.forEach((name, dataSource) -> {
+            try {
+                var lag = measureLag(dataSource);
+                if (lag.compareTo(maxLag) <= 0) {
+                    available.add(name);
+                    if (!previous.contains(name)) {
+                        log.info("La réplica {} está al día ({}), se vuelve a usar para lecturas", name, lag);
+                    }
+                } else if (previous.contains(name)) {
+                    log.warn("La réplica {} supera el retraso tolerado ({}), se excluye de las lecturas", name, lag);
+                }
+            } catch (SQLException e) {
+                if (previous.contains(name)) {
+                    log.warn("No se pudo verificar la réplica {}, se excluye de las lecturas: {}", name, e.getMessage());
+                }
+            }
+        });
+        availableReplicas = List.copyOf(available);
+    }
+
+    /**
+     * Posición actual del WAL del primario, en bytes.
+     */
+    protected long primaryLsn() throws SQLException {
+        try (var connection = primary.getConnection();
+             var statement = connection.createStatement();
+             var resultSet = statement.executeQuery(PRIMARY_LSN_QUERY)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    /**
+     * Retraso de replicación de la réplica respecto a las posiciones del primario registradas.
+     */
+    protected Duration measureLag(DataSource dataSource) throws SQLException {
+        try (var connection = dataSource.getConnection();
+             var statement = connection.createStatement();
+             var resultSet = statement.executeQuery(REPLAY_LSN_QUERY)) {
+            resultSet.next();
+            if (!resultSet.getBoolean(1)) {
+                return Duration.ZERO;
+            }
+            return lagBehind(resultSet.getLong(2), Instant.now());
+        }
+    }
+
+    /**
+     * Registra la posición del primario. Solo se guarda cuando avanza (importa el primer momento en que
+     * se alcanzó cada posición) y se descartan las muestras antiguas, conservando la más reciente con al
+     * menos {@code maxLag} de antigüedad: una réplica que no la aplicó ya supera el retraso tolerado.
+     */
+    void recordPrimarySample(Instant time, long lsn) {
+        var last = primarySamples.peekLast();
+        if (last == null || lsn > last.lsn()) {
+            primarySamples.addLast(new LsnSample(time, lsn));
+        }
+        var cutoff = time.minus(maxLag);
+        while (primarySamples.size() > 1) {
+            var oldest = primarySamples.pollFirst();
+            if (primarySamples.getFirst().time().isAfter(cutoff)) {
+                primarySamples.addFirst(oldest);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Tiempo transcurrido desde la primera posición del primario que la réplica aún no aplicó; cero si
+     * aplicó todas las registradas.
+     */
+    Duration lagBehind(long replayedLsn, Instant now) {
+        for (var sample : primarySamples) {
+            if (sample.lsn() > replayedLsn) {
+                return Duration.between(sample.time(), now);
+            }
+        }
+        return Duration.ZERO;
+    }
+
+    private record LsnSample(Instant time, long lsn) {
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (var dataSource : replicas.values()) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        if (primary instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.peluware.freddy.products.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+/**
+ * Cantidad de un producto a reservar o liberar.
+ */
+@Data
+public class StockItemDto {
+
+    @NotNull
+    private Long productId;
+
+    @NotNull
+    @Positive
+    private Integer quantity;
+}
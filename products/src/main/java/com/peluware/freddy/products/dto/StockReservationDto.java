@@ -0,0 +1,28 @@
+package com.peluware.freddy.products.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Reserva de stock de una venta: se aplica completa o no se aplica.
+ */
+@Data
+public class StockReservationDto {
+
+    /**
+     * Clave de idempotencia opcional: una reserva repetida con la misma clave devuelve el resultado
+     * original sin volver a descontar, y solo las reservas con clave pueden liberarse.
+     */
+    @Size(max = 255)
+    private String key;
+
+    @NotNull
+    @NotEmpty
+    @Valid
+    private List<@NotNull StockItemDto> items;
+}
@@ -0,0 +1,30 @@
+package com.peluware.freddy.products.dto;
+
+import com.peluware.freddy.products.models.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Resultado de una reserva de stock. Si se aplicó incluye los productos con el stock ya descontado,
+ * si no, el motivo del rechazo.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationResult {
+
+    private boolean reserved;
+    private String error;
+    private List<Product> products;
+
+    public static StockReservationResult reserved(List<Product> products) {
+        return new StockReservationResult(true, null, products);
+    }
+
+    public static StockReservationResult rejected(String error) {
+        return new StockReservationResult(false, error, List.of());
+    }
+}
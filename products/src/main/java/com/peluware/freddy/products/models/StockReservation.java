@@ -0,0 +1,32 @@
+package com.peluware.freddy.products.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Registro de una reserva de stock identificada por su clave de idempotencia. Permite que el cliente
+ * reintente una reserva cuyo resultado no conoce sin que el stock se descuente dos veces. (JPA Entity)
+ */
+@Data
+@Entity
+public class StockReservation {
+
+    @Id
+    private String id;
+
+    @Column(nullable = false)
+    private boolean reserved;
+
+    @Column(length = 1000)
+    private String error;
+
+    @Column(nullable = false)
+    private boolean released;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -1,10 +1,23 @@
 package com.peluware.freddy.products.repositories;
 
 import com.peluware.freddy.products.models.Product;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Capa de acceso a datos para la entidad Product (Repositorio JPA).
  */
 public interface ProductRepository extends JpaRepository<Product, Long> {
+
+    /**
+     * Obtiene y bloquea los productos para modificar su stock. Se bloquean en orden de ID para evitar deadlocks.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Product p where p.id in :ids order by p.id")
+    List<Product> findAllForUpdate(Collection<Long> ids);
 }
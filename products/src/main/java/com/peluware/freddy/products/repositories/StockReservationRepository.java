@@ -0,0 +1,18 @@
+package com.peluware.freddy.products.repositories;
+
+import com.peluware.freddy.products.models.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+
+/**
+ * Capa de acceso a datos para los registros de reservas de stock (Repositorio JPA).
+ */
+public interface StockReservationRepository extends JpaRepository<StockReservation, String> {
+
+    @Modifying
+    @Query("delete from StockReservation r where r.createdAt < :before")
+    int deleteCreatedBefore(Instant before);
+}
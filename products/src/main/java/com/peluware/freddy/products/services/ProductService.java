@@ -1,26 +1,57 @@
 package com.peluware.freddy.products.services;
 
 import com.peluware.freddy.products.dto.ProductDto;
+import com.peluware.freddy.products.dto.StockItemDto;
+import com.peluware.freddy.products.dto.StockReservationDto;
+import com.peluware.freddy.products.dto.StockReservationResult;
 import com.peluware.freddy.products.models.Product;
+import com.peluware.freddy.products.models.StockReservation;
 import com.peluware.freddy.products.repositories.ProductRepository;
+import com.peluware.freddy.products.repositories.StockReservationRepository;
 import com.peluware.springframework.crud.jpa.JpaCrudService;
 import jakarta.persistence.EntityManager;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Capa de servicio para la gestión de productos.
  */
 @Service
 @Getter // Genera los getters para los campos finales (Autoimplementación de la interfaz)
-@RequiredArgsConstructor
 public class ProductService implements JpaCrudService<Product, ProductDto, Long, ProductRepository> {
 
     private final ProductRepository repository;
     private final EntityManager entityManager;
     private final PlatformTransactionManager transactionManager;
+    private final StockReservationRepository stockReservationRepository;
+    private final Duration reservationRetention;
+
+    public ProductService(
+            ProductRepository repository,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            StockReservationRepository stockReservationRepository,
+            @Value("${products.stock.reservation-retention:1d}") Duration reservationRetention
+    ) {
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.transactionManager = transactionManager;
+        this.stockReservationRepository = stockReservationRepository;
+        this.reservationRetention = reservationRetention;
+    }
 
     @Override
     public void mapModel(ProductDto dto, Product model) {
@@ -30,6 +61,128 @@ public class ProductService implements JpaCrudService<Product, ProductDto, Long,
         model.setStock(dto.getStock());
     }
 
+    /**
+     * Aplica un lote de reservas de stock en una sola transacción, bloqueando los productos involucrados.
+     * Cada reserva se aplica completa o se rechaza sin afectar a las demás del lote. Las reservas con una
+     * clave ya registrada devuelven el resultado original sin volver a descontar.
+     */
+    @Transactional
+    public List<StockReservationResult> reserveStock(List<StockReservationDto> reservations) {
+        var products = lockProducts(reservations.stream().flatMap(reservation -> reservation.getItems().stream()).toList());
+        return reservations.stream().map(reservation -> {
+            if (reservation.getKey() == null) {
+                return reserve(reservation, products);
+            }
+            var previous = stockReservationRepository.findById(reservation.getKey());
+            if (previous.isPresent()) {
+                return replay(previous.get(), reservation, products);
+            }
+            var result = reserve(reservation, products);
+            stockReservationRepository.save(record(reservation.getKey(), result));
+            return result;
+        }).toList();
+    }
+
+    /**
+     * Devuelve al stock las cantidades de reservas aplicadas previamente (p. ej. si la venta no se pudo
+     * registrar). Solo se liberan reservas con clave, aplicadas y aún no liberadas, por lo que repetir
+     * la liberación, o liberar una reserva que nunca se aplicó, no tiene efecto.
+     */
+    @Transactional
+    public void releaseStock(List<StockReservationDto> reservations) {
+        var releasable = reservations.stream()
+                .filter(reservation -> reservation.getKey() != null)
+                .toList();
+        var products = lockProducts(releasable.stream().flatMap(reservation -> reservation.getItems().stream()).toList());
+        for (var reservation : releasable) {
+            var record = stockReservationRepository.findById(reservation.getKey());
+            if (record.isEmpty() || !record.get().isReserved() || record.get().isReleased()) {
+                continue;
+            }
+            for (var item : reservation.getItems()) {
+                var product = products.get(item.getProductId());
+                if (product != null) {
+                    product.setStock(product.getStock() + item.getQuantity());
+                }
+            }
+            record.get().setReleased(true);
+        }
+    }
+
+    /**
+     * Elimina los registros de reservas más antiguos que la retención; para entonces ningún cliente
+     * sigue reintentándolas.
+     */
+    @Transactional
+    @Scheduled(fixedDelayString = "${products.stock.reservation-cleanup-interval:1h}")
+    public void purgeStockReservations() {
+        stockReservationRepository.deleteCreatedBefore(Instant.now().minus(reservationRetention));
+    }
+
+    private StockReservationResult reserve(StockReservationDto reservation, Map<Long, Product> products) {
+        var items = reservation.getItems();
+        if (items.stream().map(StockItemDto::getProductId).distinct().count() != items.size()) {
+            return StockReservationResult.rejected("No se pueden repetir productos en una reserva");
+        }
+
+        // Validar que existan los productos y que haya suficiente stock antes de descontar
+        for (var item : items) {
+            var product = products.get(item.getProductId());
+            if (product == null) {
+                return StockReservationResult.rejected("No se encontró el producto con ID: " + item.getProductId());
+            }
+            if (product.getStock() < item.getQuantity()) {
+                return StockReservationResult.rejected("No hay suficiente stock para el producto: " + product.getName());
+            }
+        }
+
+        // Se devuelve una copia porque las reservas siguientes del lote siguen modificando la entidad
+        var reserved = items.stream().map(item -> {
+            var product = products.get(item.getProductId());
+            product.setStock(product.getStock() - item.getQuantity());
+            return copyOf(product);
+        }).toList();
+        return StockReservationResult.reserved(reserved);
+    }
+
+    private static StockReservationResult replay(StockReservation previous, StockReservationDto reservation, Map<Long, Product> products) {
+        if (!previous.isReserved()) {
+            return StockReservationResult.rejected(previous.getError());
+        }
+        return StockReservationResult.reserved(reservation.getItems().stream()
+                .map(item -> products.get(item.getProductId()))
+                .filter(Objects::nonNull)
+                .map(ProductService::copyOf)
+                .toList());
+    }
+
+    private static StockReservation record(String key, StockReservationResult result) {
+        var record = new StockReservation();
+        record.setId(key);
+        record.setReserved(result.isReserved());
+        record.setError(result.getError());
+        record.setCreatedAt(Instant.now());
+        return record;
+    }
+
+    private Map<Long, Product> lockProducts(Collection<StockItemDto> items) {
+        var ids = items.stream().map(StockItemDto::getProductId).collect(Collectors.toSet());
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return repository.findAllForUpdate(ids).stream().collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+
+    private static Product copyOf(Product product) {
+        var copy = new Product();
+        copy.setId(product.getId());
+        copy.setName(product.getName());
+        copy.setPrice(product.getPrice());
+        copy.setDescription(product.getDescription());
+        copy.setStock(product.getStock());
+        return copy;
+    }
+
     @Override
     public Class<Product> getEntityClass() {
         return Product.class;
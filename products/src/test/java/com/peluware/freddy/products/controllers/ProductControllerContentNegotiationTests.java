@@ -0,0 +1,86 @@
+package com.peluware.freddy.products.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.peluware.freddy.products.dto.StockReservationResult;
+import com.peluware.freddy.products.services.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Negociación de contenido: Smile para los clientes que lo piden y JSON para los navegadores.
+ */
+@WebMvcTest(ProductController.class)
+class ProductControllerContentNegotiationTests {
+
+    private static final String SMILE = "application/x-jackson-smile";
+    private static final String BROWSER_ACCEPT = "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8";
+    private static final String RESERVATIONS = "[{\"items\":[{\"productId\":1,\"quantity\":2}]}]";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private ProductService service;
+
+    @MockitoBean
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        when(service.reserveStock(anyList())).thenReturn(List.of(StockReservationResult.rejected("sin stock")));
+    }
+
+    @Test
+    void smileAcceptReturnsSmile() throws Exception {
+        var body = mockMvc.perform(post("/products/stock/reservations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.ACCEPT, SMILE)
+                        .content(RESERVATIONS))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        var results = new SmileMapper().readValue(body, StockReservationResult[].class);
+        assertFalse(results[0].isReserved());
+        assertEquals("sin stock", results[0].getError());
+    }
+
+    @Test
+    void browserAcceptReturnsJson() throws Exception {
+        mockMvc.perform(post("/products/stock/reservations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.ACCEPT, BROWSER_ACCEPT)
+                        .content(RESERVATIONS))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].error").value("sin stock"));
+    }
+
+    @Test
+    void smileRequestBodiesAreAccepted() throws Exception {
+        var smileBody = new SmileMapper().writeValueAsBytes(new ObjectMapper().readTree(RESERVATIONS));
+        mockMvc.perform(post("/products/stock/reservations")
+                        .contentType(SMILE)
+                        .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                        .content(smileBody))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].reserved").value(false));
+    }
+}
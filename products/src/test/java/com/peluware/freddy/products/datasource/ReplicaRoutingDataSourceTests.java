@@ -0,0 +1,122 @@
+package com.peluware.freddy.products.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+class ReplicaRoutingDataSourceTests {
+
+    private final Map<DataSource, Duration> lags = new HashMap<>();
+    private final DataSource replica0 = mock(DataSource.class);
+    private final DataSource replica1 = mock(DataSource.class);
+    private ReplicaRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() {
+        var replicas = new LinkedHashMap<String, DataSource>();
+        replicas.put("replica-0", replica0);
+        replicas.put("replica-1", replica1);
+        routing = new ReplicaRoutingDataSource(mock(DataSource.class), replicas, Duration.ofSeconds(5)) {
+            @Override
+            protected long primaryLsn() {
+                return 0;
+            }
+
+            @Override
+            protected Duration measureLag(DataSource dataSource) {
+                return lags.getOrDefault(dataSource, Duration.ZERO);
+            }
+        };
+        routing.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        ReplicaRoutingDataSource.setPrimaryReads(false);
+    }
+
+    @Test
+    void writesGoToPrimary() {
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, routing.determineCurrentLookupKey());
+    }
+
+    @Test
+    void readOnlyTransactionsAlternateBetweenReplicas() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals("replica-0", routing.determineCurrentLookupKey());
+        assertEquals("replica-1", routing.determineCurrentLookupKey());
+        assertEquals("replica-0", routing.determineCurrentLookupKey());
+    }
+
+    @Test
+    void primaryReadsBypassReplicas() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        ReplicaRoutingDataSource.setPrimaryReads(true);
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, routing.determineCurrentLookupKey());
+    }
+
+    @Test
+    void laggingReplicasAreExcluded() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        lags.put(replica0, Duration.ofSeconds(30));
+        routing.checkReplicationLag();
+        assertEquals("replica-1", routing.determineCurrentLookupKey());
+        assertEquals("replica-1", routing.determineCurrentLookupKey());
+
+        lags.put(replica1, Duration.ofSeconds(30));
+        routing.checkReplicationLag();
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, routing.determineCurrentLookupKey());
+
+        lags.clear();
+        routing.checkReplicationLag();
+        assertEquals("replica-0", routing.determineCurrentLookupKey());
+        assertEquals("replica-1", routing.determineCurrentLookupKey());
+    }
+
+    @Test
+    void lagIsTimeSinceFirstPrimaryPositionNotReplayed() {
+        var start = Instant.parse("2025-01-01T00:00:00Z");
+        routing.recordPrimarySample(start, 100);
+        routing.recordPrimarySample(start.plusSeconds(3), 200);
+        routing.recordPrimarySample(start.plusSeconds(4), 300);
+
+        var now = start.plusSeconds(4);
+        assertEquals(Duration.ZERO, routing.lagBehind(300, now));
+        assertEquals(Duration.ofSeconds(1), routing.lagBehind(250, now));
+        assertEquals(Duration.ofSeconds(4), routing.lagBehind(50, now));
+    }
+
+    @Test
+    void idleReplicaIsUpToDateWithoutRecentWrites() {
+        var start = Instant.parse("2025-01-01T00:00:00Z");
+        routing.recordPrimarySample(start, 100);
+        routing.recordPrimarySample(start.plusSeconds(60), 100);
+
+        assertEquals(Duration.ZERO, routing.lagBehind(100, start.plusSeconds(60)));
+    }
+
+    @Test
+    void stalledReplicaAccumulatesLagOnceThePrimaryAdvances() {
+        var start = Instant.parse("2025-01-01T00:00:00Z");
+        routing.recordPrimarySample(start, 100);
+        routing.recordPrimarySample(start.plusSeconds(10), 200);
+        assertEquals(Duration.ofSeconds(2), routing.lagBehind(100, start.plusSeconds(12)));
+
+        // Las muestras antiguas se descartan, pero se conserva una con al menos maxLag de antigüedad
+        routing.recordPrimarySample(start.plusSeconds(20), 300);
+        routing.recordPrimarySample(start.plusSeconds(30), 400);
+        assertEquals(Duration.ofSeconds(10), routing.lagBehind(100, start.plusSeconds(30)));
+    }
+}
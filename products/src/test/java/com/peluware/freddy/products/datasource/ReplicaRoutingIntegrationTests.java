@@ -0,0 +1,122 @@
+package com.peluware.freddy.products.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Enrutamiento contra dos bases locales independientes: la "réplica" tiene el mismo producto con
+ * otro nombre, así se sabe de qué base se leyó y en cuál se escribió. Como la réplica no está en
+ * recuperación, aquí no se mide retraso; el cálculo del retraso se prueba en {@link ReplicaRoutingDataSourceTests}.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.jpa.hibernate.ddl-auto=none"
+)
+class ReplicaRoutingIntegrationTests {
+
+    @Container
+    static final PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withInitScript("replica-routing/schema.sql");
+
+    @Container
+    static final PostgreSQLContainer<?> replica = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withInitScript("replica-routing/schema.sql");
+
+    @DynamicPropertySource
+    static void dataSources(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", primary::getJdbcUrl);
+        registry.add("spring.datasource.username", primary::getUsername);
+        registry.add("spring.datasource.password", primary::getPassword);
+        registry.add("products.datasource.replicas[0].url", replica::getJdbcUrl);
+        registry.add("products.datasource.replicas[0].username", replica::getUsername);
+        registry.add("products.datasource.replicas[0].password", replica::getPassword);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> 4);
+        registry.add("products.datasource.replicas[0].hikari.maximum-pool-size", () -> 2);
+    }
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    void seed() {
+        seed(primary, "primario");
+        seed(replica, "replica");
+    }
+
+    @Test
+    void getReadsFromReplica() {
+        assertEquals("replica", rest.getForObject("/products/1", Map.class).get("name"));
+    }
+
+    @Test
+    void readPrimaryHeaderReadsFromPrimary() {
+        var headers = new HttpHeaders();
+        headers.set(ReadOnlyRequestFilter.PRIMARY_HEADER, "true");
+        var response = rest.exchange("/products/1", HttpMethod.GET, new HttpEntity<>(headers), Map.class);
+        assertEquals("primario", response.getBody().get("name"));
+    }
+
+    @Test
+    void putWritesToPrimary() {
+        var product = Map.of("name", "actualizado", "price", "12.50", "description", "descripcion", "stock", 7);
+        rest.put("/products/1", product);
+
+        assertEquals("actualizado", jdbc(primary).queryForObject("select name from product where id = 1", String.class));
+        assertEquals("replica", jdbc(replica).queryForObject("select name from product where id = 1", String.class));
+    }
+
+    @Test
+    void stockReservationWritesToPrimary() {
+        var reservations = List.of(Map.of("items", List.of(Map.of("productId", 1, "quantity", 2))));
+        rest.postForObject("/products/stock/reservations", reservations, List.class);
+
+        assertEquals(3, jdbc(primary).queryForObject("select stock from product where id = 1", Integer.class));
+        assertEquals(5, jdbc(replica).queryForObject("select stock from product where id = 1", Integer.class));
+    }
+
+    @Test
+    void hikariPropertiesApplyToPrimaryAndReplicaPools() {
+        var pools = routingDataSource.getResolvedDataSources();
+        var primaryPool = (HikariDataSource) pools.get(ReplicaRoutingDataSource.PRIMARY);
+        var replicaPool = (HikariDataSource) pools.get("replica-0");
+
+        assertEquals(4, primaryPool.getMaximumPoolSize());
+        assertEquals(2, replicaPool.getMaximumPoolSize());
+        assertEquals("replica-0", replicaPool.getPoolName());
+        assertTrue(replicaPool.isReadOnly());
+    }
+
+    private static void seed(PostgreSQLContainer<?> container, String name) {
+        var jdbc = jdbc(container);
+        jdbc.update("delete from product");
+        jdbc.update("insert into product (id, name, price, description, stock) values (1, ?, 10.00, 'descripcion', 5)", name);
+    }
+
+    private static JdbcTemplate jdbc(PostgreSQLContainer<?> container) {
+        return new JdbcTemplate(new DriverManagerDataSource(container.getJdbcUrl(), container.getUsername(), container.getPassword()));
+    }
+}
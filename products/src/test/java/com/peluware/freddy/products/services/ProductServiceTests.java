@@ -0,0 +1,195 @@
+package com.peluware.freddy.products.services;
+
+import com.peluware.freddy.products.dto.StockItemDto;
+import com.peluware.freddy.products.dto.StockReservationDto;
+import com.peluware.freddy.products.models.Product;
+import com.peluware.freddy.products.models.StockReservation;
+import com.peluware.freddy.products.repositories.ProductRepository;
+import com.peluware.freddy.products.repositories.StockReservationRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class ProductServiceTests {
+
+    private final ProductRepository repository = mock(ProductRepository.class);
+    private final StockReservationRepository stockReservationRepository = mock(StockReservationRepository.class);
+    private final ProductService service = new ProductService(
+            repository,
+            mock(EntityManager.class),
+            mock(PlatformTransactionManager.class),
+            stockReservationRepository,
+            Duration.ofDays(1)
+    );
+
+    @Test
+    void laterReservationsSeeStockTakenByEarlierOnesInTheBatch() {
+        var product = product(1L, 5);
+        when(repository.findAllForUpdate(Set.of(1L))).thenReturn(List.of(product));
+
+        var results = service.reserveStock(List.of(
+                reservation(null, item(1L, 3)),
+                reservation(null, item(1L, 3)),
+                reservation(null, item(1L, 2))
+        ));
+
+        assertTrue(results.get(0).isReserved());
+        assertFalse(results.get(1).isReserved());
+        assertEquals("No hay suficiente stock para el producto: Producto 1", results.get(1).getError());
+        assertTrue(results.get(2).isReserved());
+        assertEquals(0, product.getStock());
+        // Cada resultado refleja el stock en el momento de su reserva
+        assertEquals(2, results.get(0).getProducts().getFirst().getStock());
+    }
+
+    @Test
+    void rejectedReservationDoesNotTouchAnyOfItsProducts() {
+        var first = product(1L, 10);
+        var second = product(2L, 1);
+        when(repository.findAllForUpdate(anyCollection())).thenReturn(List.of(first, second));
+
+        var results = service.reserveStock(List.of(
+                reservation(null, item(1L, 4), item(2L, 5)),
+                reservation(null, item(1L, 4))
+        ));
+
+        assertFalse(results.get(0).isReserved());
+        assertTrue(results.get(1).isReserved());
+        assertEquals(6, first.getStock());
+        assertEquals(1, second.getStock());
+    }
+
+    @Test
+    void rejectsRepeatedProductsInReservation() {
+        var product = product(1L, 10);
+        when(repository.findAllForUpdate(anyCollection())).thenReturn(List.of(product));
+
+        var result = service.reserveStock(List.of(reservation(null, item(1L, 1), item(1L, 2)))).getFirst();
+
+        assertFalse(result.isReserved());
+        assertEquals("No se pueden repetir productos en una reserva", result.getError());
+        assertEquals(10, product.getStock());
+    }
+
+    @Test
+    void rejectsMissingProduct() {
+        var product = product(1L, 10);
+        when(repository.findAllForUpdate(anyCollection())).thenReturn(List.of(product));
+
+        var result = service.reserveStock(List.of(reservation(null, item(1L, 1), item(99L, 1)))).getFirst();
+
+        assertFalse(result.isReserved());
+        assertEquals("No se encontró el producto con ID: 99", result.getError());
+        assertEquals(10, product.getStock());
+    }
+
+    @Test
+    void emptyBatchDoesNotQueryProducts() {
+        assertTrue(service.reserveStock(List.of()).isEmpty());
+        service.releaseStock(List.of());
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void reservationWithKeyIsRecorded() {
+        when(repository.findAllForUpdate(anyCollection())).thenReturn(List.of(product(1L, 10)));
+
+        service.reserveStock(List.of(reservation("order-1", item(1L, 4))));
+
+        verify(stockReservationRepository).save(argThat(record -> record.getId().equals("order-1") && record.isReserved()));
+    }
+
+    @Test
+    void repeatedKeyReturnsOriginalResultWithoutReservingAgain() {
+        var product = product(1L, 6);
+        when(repository.findAllForUpdate(anyCollection())).thenReturn(List.of(product));
+        when(stockReservationRepository.findById("order-1")).thenReturn(Optional.of(record("order-1", true, false)));
+        when(stockReservationRepository.findById("order-2")).thenReturn(Optional.of(rejectedRecord("order-2", "sin stock")));
+
+        var results = service.reserveStock(List.of(reservation("order-1", item(1L, 4)), reservation("order-2", item(1L, 1))));
+
+        assertTrue(results.get(0).isReserved());
+        assertEquals(1L, results.get(0).getProducts().getFirst().getId());
+        assertFalse(results.get(1).isReserved());
+        assertEquals("sin stock", results.get(1).getError());
+        assertEquals(6, product.getStock());
+        verify(stockReservationRepository, never()).save(any());
+    }
+
+    @Test
+    void releaseRestoresAppliedReservationOnlyOnce() {
+        var product = product(1L, 6);
+        var record = record("order-1", true, false);
+        when(repository.findAllForUpdate(anyCollection())).thenReturn(List.of(product));
+        when(stockReservationRepository.findById("order-1")).thenReturn(Optional.of(record));
+
+        service.releaseStock(List.of(reservation("order-1", item(1L, 4))));
+        service.releaseStock(List.of(reservation("order-1", item(1L, 4))));
+
+        assertEquals(10, product.getStock());
+        assertTrue(record.isReleased());
+    }
+
+    @Test
+    void releaseIgnoresReservationsThatWereNeverApplied() {
+        var product = product(1L, 6);
+        when(repository.findAllForUpdate(anyCollection())).thenReturn(List.of(product));
+        when(stockReservationRepository.findById("rejected")).thenReturn(Optional.of(rejectedRecord("rejected", "sin stock")));
+
+        service.releaseStock(List.of(
+                reservation("unknown", item(1L, 4)),
+                reservation("rejected", item(1L, 4)),
+                reservation(null, item(1L, 4))
+        ));
+
+        assertEquals(6, product.getStock());
+    }
+
+    private static Product product(Long id, int stock) {
+        var product = new Product();
+        product.setId(id);
+        product.setName("Producto " + id);
+        product.setPrice(new BigDecimal("10.00"));
+        product.setStock(stock);
+        return product;
+    }
+
+    private static StockItemDto item(Long productId, int quantity) {
+        var item = new StockItemDto();
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    private static StockReservationDto reservation(String key, StockItemDto... items) {
+        var reservation = new StockReservationDto();
+        reservation.setKey(key);
+        reservation.setItems(List.of(items));
+        return reservation;
+    }
+
+    private static StockReservation record(String key, boolean reserved, boolean released) {
+        var record = new StockReservation();
+        record.setId(key);
+        record.setReserved(reserved);
+        record.setReleased(released);
+        return record;
+    }
+
+    private static StockReservation rejectedRecord(String key, String error) {
+        var record = record(key, false, false);
+        record.setError(error);
+        return record;
+    }
+}
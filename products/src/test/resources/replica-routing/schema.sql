@@ -0,0 +1,17 @@
+create table product
+(
+    id          bigint generated by default as identity primary key,
+    name        varchar(255)   not null,
+    price       numeric(38, 2) not null,
+    description varchar(1000),
+    stock       integer        not null
+);
+
+create table stock_reservation
+(
+    id         varchar(255)             not null primary key,
+    reserved   boolean                  not null,
+    error      varchar(1000),
+    released   boolean                  not null,
+    created_at timestamp(6) with time zone not null
+);
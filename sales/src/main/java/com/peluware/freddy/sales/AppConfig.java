@@ -1,21 +1,41 @@
 package com.peluware.freddy.sales;
 
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.peluware.freddy.sales.controllers.SaleResponseCacheInterceptor;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.web.config.EnableSpringDataWebSupport;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.client.RestOperations;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
+@RequiredArgsConstructor
 @EnableSpringDataWebSupport(pageSerializationMode = EnableSpringDataWebSupport.PageSerializationMode.VIA_DTO)
-public class AppConfig {
+public class AppConfig implements WebMvcConfigurer {
+
+    private final SaleResponseCacheInterceptor saleResponseCacheInterceptor;
 
     @Bean
-    public RestOperations productMicroserviceRestOperations(RestTemplateBuilder builder, @Value("${product.service.host:http://localhost:8082}") String productsServiceUrl) {
-        return builder
+    public RestOperations productMicroserviceRestOperations(RestTemplateBuilder builder, Jackson2ObjectMapperBuilder objectMapperBuilder, @Value("${product.service.host:http://localhost:8082}") String productsServiceUrl) {
+        var restTemplate = builder
                 .rootUri(productsServiceUrl)
                 .build();
+
+        // Smile va primero: se anuncia antes que JSON en el Accept y se usa para los cuerpos de las peticiones
+        var smileMapper = objectMapperBuilder.factory(new SmileFactory()).build();
+        restTemplate.getMessageConverters().addFirst(new MappingJackson2SmileHttpMessageConverter(smileMapper));
+        return restTemplate;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(saleResponseCacheInterceptor).addPathPatterns("/sales/*");
     }
 
 }
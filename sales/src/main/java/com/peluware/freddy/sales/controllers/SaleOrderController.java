@@ -0,0 +1,37 @@
+package com.peluware.freddy.sales.controllers;
+
+import com.peluware.freddy.sales.dto.SaleDto;
+import com.peluware.freddy.sales.models.SaleOrder;
+import com.peluware.freddy.sales.services.SaleOrderService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Modo asíncrono de ventas: la venta se encola y se responde 202 con la URL para consultar su estado.
+ */
+@RestController
+@RequestMapping("/sales/async")
+@CrossOrigin(origins = "*")
+@RequiredArgsConstructor
+public class SaleOrderController {
+
+    private final SaleOrderService service;
+
+    @PostMapping
+    public ResponseEntity<SaleOrder> enqueue(@Valid @RequestBody SaleDto dto) {
+        var order = service.enqueue(dto);
+        var location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{id}")
+                .buildAndExpand(order.getId())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(order);
+    }
+
+    @GetMapping("/{id}")
+    public SaleOrder status(@PathVariable String id) {
+        return service.find(id);
+    }
+}
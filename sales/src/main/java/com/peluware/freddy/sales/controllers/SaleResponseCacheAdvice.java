@@ -0,0 +1,45 @@
+package com.peluware.freddy.sales.controllers;
+
+import com.peluware.freddy.sales.models.Sale;
+import com.peluware.freddy.sales.utils.SaleResponseCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Al responder una venta por el flujo normal (no estaba en {@link SaleResponseCache}) la agrega a la
+ * cache y agrega su ETag, para que las siguientes lecturas las sirva {@link SaleResponseCacheInterceptor}.
+ */
+@ControllerAdvice
+@RequiredArgsConstructor
+public class SaleResponseCacheAdvice implements ResponseBodyAdvice<Object> {
+
+    private final SaleResponseCache cache;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return AbstractJackson2HttpMessageConverter.class.isAssignableFrom(converterType);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType, Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request, ServerHttpResponse response) {
+        if (body instanceof Sale sale && sale.getId() != null && request.getMethod() == HttpMethod.GET) {
+            var cached = cache.get(sale.getId());
+            if (cached == null) {
+                cached = cache.put(sale);
+            }
+            if (cached != null) {
+                response.getHeaders().setETag(cached.etag());
+                response.getHeaders().setCacheControl(SaleResponseCache.CACHE_CONTROL);
+            }
+        }
+        return body;
+    }
+}
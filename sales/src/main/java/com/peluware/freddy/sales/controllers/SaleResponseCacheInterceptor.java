@@ -0,0 +1,61 @@
+package com.peluware.freddy.sales.controllers;
+
+import com.peluware.freddy.sales.utils.SaleResponseCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Sirve {@code GET /sales/{id}} desde {@link SaleResponseCache} sin consultar Mongo ni volver a serializar,
+ * respondiendo 304 cuando el cliente ya tiene la versión (If-None-Match). Las peticiones que no aceptan
+ * JSON y las ventas que no están en cache siguen el flujo normal, donde {@link SaleResponseCacheAdvice}
+ * las agrega.
+ * <p>
+ * Se registra (después del interceptor de CORS) en {@link com.peluware.freddy.sales.AppConfig}.
+ */
+@Component
+@RequiredArgsConstructor
+public class SaleResponseCacheInterceptor implements HandlerInterceptor {
+
+    private final SaleResponseCache cache;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!HttpMethod.GET.matches(request.getMethod()) || !acceptsJson(request.getHeader(HttpHeaders.ACCEPT))) {
+            return true;
+        }
+
+        var uri = request.getRequestURI();
+        var cached = cache.get(uri.substring(uri.lastIndexOf('/') + 1));
+        if (cached == null) {
+            return true;
+        }
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, SaleResponseCache.CACHE_CONTROL);
+        if (new ServletWebRequest(request, response).checkNotModified(cached.etag())) {
+            return false;
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(cached.body().length);
+        response.getOutputStream().write(cached.body());
+        return false;
+    }
+
+    private static boolean acceptsJson(String accept) {
+        if (accept == null) {
+            return true;
+        }
+        try {
+            return MediaType.parseMediaTypes(accept).stream().anyMatch(MediaType.APPLICATION_JSON::isCompatibleWith);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+}
@@ -6,9 +6,7 @@ import com.peluware.freddy.sales.schemas.Product;
 import com.peluware.freddy.sales.utils.CachedResources;
 import lombok.AllArgsConstructor;
 import lombok.Data;
-import lombok.Getter;
 import lombok.NoArgsConstructor;
-import org.springframework.data.annotation.Transient;
 
 import java.math.BigDecimal;
 
@@ -22,12 +20,25 @@ public class SaleItem {
     private BigDecimal price;
     private int quantity;
 
+    /**
+     * Datos del producto al momento de la venta, guardados con ella para que la venta no cambie
+     * si el producto se modifica después.
+     */
+    private Product product;
+
     @JsonProperty
     public BigDecimal getSubTotal() {
         return price.multiply(BigDecimal.valueOf(quantity));
     }
 
-    @Transient
-    @Getter(lazy = true)
-    private final Product product = CachedResources.getInstance().getProducts().get(productId);
-}
\ No newline at end of file
+    /**
+     * Las ventas registradas antes de guardar los datos del producto los consultan al microservicio de productos.
+     */
+    public Product getProduct() {
+        return product != null ? product : CachedResources.getInstance().getProducts().get(productId);
+    }
+
+    public boolean hasProductSnapshot() {
+        return product != null;
+    }
+}
@@ -0,0 +1,41 @@
+package com.peluware.freddy.sales.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.peluware.freddy.sales.dto.SaleDto;
+import com.peluware.freddy.sales.schemas.SaleOrderStatus;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.domain.Persistable;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Venta encolada para ser procesada de forma asíncrona por los workers.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "sale_orders")
+@CompoundIndex(def = "{'status': 1, 'createdAt': 1}")
+public class SaleOrder implements Persistable<String> {
+
+    @Id
+    private String id;
+    private SaleDto sale;
+    private SaleOrderStatus status;
+    private String saleId;
+    private String error;
+    private int attempts;
+    private Instant notBefore;
+    private Instant createdAt;
+    private Instant updatedAt;
+
+    @JsonIgnore
+    @Override
+    public boolean isNew() {
+        return id == null;
+    }
+
+}
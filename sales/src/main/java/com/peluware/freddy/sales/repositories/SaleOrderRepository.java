@@ -0,0 +1,7 @@
+package com.peluware.freddy.sales.repositories;
+
+import com.peluware.freddy.sales.models.SaleOrder;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface SaleOrderRepository extends MongoRepository<SaleOrder, String> {
+}
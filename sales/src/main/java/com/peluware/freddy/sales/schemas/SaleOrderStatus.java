@@ -0,0 +1,5 @@
+package com.peluware.freddy.sales.schemas;
+
+public enum SaleOrderStatus {
+    PENDING, PROCESSING, COMPLETED, FAILED
+}
@@ -0,0 +1,13 @@
+package com.peluware.freddy.sales.schemas;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockItem {
+    private Long productId;
+    private Integer quantity;
+}
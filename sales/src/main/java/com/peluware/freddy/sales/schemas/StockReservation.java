@@ -0,0 +1,30 @@
+package com.peluware.freddy.sales.schemas;
+
+import com.peluware.freddy.sales.dto.SaleDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Reserva de stock de una venta en el microservicio de productos; se aplica completa o no se aplica.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservation {
+
+    /**
+     * Clave de idempotencia: productos no vuelve a descontar una reserva con una clave ya registrada,
+     * y solo libera las reservas con clave.
+     */
+    private String key;
+    private List<StockItem> items;
+
+    public static StockReservation from(String key, SaleDto dto) {
+        return new StockReservation(key, dto.getItems().stream()
+                .map(item -> new StockItem(item.getProductId(), item.getQuantity()))
+                .toList());
+    }
+}
@@ -0,0 +1,16 @@
+package com.peluware.freddy.sales.schemas;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationResult {
+    private boolean reserved;
+    private String error;
+    private List<Product> products;
+}
@@ -0,0 +1,248 @@
+package com.peluware.freddy.sales.services;
+
+import com.peluware.freddy.sales.dto.SaleDto;
+import com.peluware.freddy.sales.models.Sale;
+import com.peluware.freddy.sales.models.SaleOrder;
+import com.peluware.freddy.sales.repositories.SaleOrderRepository;
+import com.peluware.freddy.sales.repositories.SaleRepository;
+import com.peluware.freddy.sales.schemas.SaleOrderStatus;
+import com.peluware.freddy.sales.schemas.StockReservation;
+import com.peluware.freddy.sales.schemas.StockReservationResult;
+import com.peluware.springframework.web.problemdetails.ProblemDetails;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Cola durable (respaldada en MongoDB) de ventas que se procesan de forma asíncrona.
+ * <p>
+ * Cada venta reserva su stock con el ID de la venta encolada como clave de idempotencia y se registra
+ * con ese mismo ID, por lo que una venta interrumpida se puede resolver (o reintentar) sin descontar
+ * el stock dos veces.
+ */
+@Slf4j
+@Service
+public class SaleOrderService {
+
+    private final SaleOrderRepository repository;
+    private final SaleRepository saleRepository;
+    private final SaleService saleService;
+    private final MongoTemplate mongoTemplate;
+    private final int maxAttempts;
+    private final Duration retryDelay;
+
+    public SaleOrderService(
+            SaleOrderRepository repository,
+            SaleRepository saleRepository,
+            SaleService saleService,
+            MongoTemplate mongoTemplate,
+            @Value("${sales.async.max-attempts:5}") int maxAttempts,
+            @Value("${sales.async.retry-delay:5s}") Duration retryDelay
+    ) {
+        this.repository = repository;
+        this.saleRepository = saleRepository;
+        this.saleService = saleService;
+        this.mongoTemplate = mongoTemplate;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+    }
+
+    /**
+     * Valida la estructura de la venta y la encola para ser procesada por los workers.
+     */
+    public SaleOrder enqueue(SaleDto dto) {
+        saleService.validateDistinctProducts(dto);
+
+        var now = Instant.now();
+        var order = new SaleOrder();
+        order.setSale(dto);
+        order.setStatus(SaleOrderStatus.PENDING);
+        order.setCreatedAt(now);
+        order.setUpdatedAt(now);
+        return repository.insert(order);
+    }
+
+    public SaleOrder find(String id) {
+        return repository.findById(id)
+                .orElseThrow(() -> ProblemDetails.notFound("No se encontró la venta encolada con ID: " + id));
+    }
+
+    /**
+     * Reclama de forma atómica hasta {@code size} ventas pendientes cuyo reintento ya venció, en orden de llegada.
+     */
+    public List<SaleOrder> claim(int size) {
+        var claimed = new ArrayList<SaleOrder>();
+        while (claimed.size() < size) {
+            var now = Instant.now();
+            var order = mongoTemplate.findAndModify(
+                    query(where("status").is(SaleOrderStatus.PENDING)
+                            .orOperator(where("notBefore").is(null), where("notBefore").lte(now)))
+                            .with(Sort.by("createdAt")),
+                    new Update().set("status", SaleOrderStatus.PROCESSING).set("updatedAt", now),
+                    FindAndModifyOptions.options().returnNew(true),
+                    SaleOrder.class
+            );
+            if (order == null) {
+                break;
+            }
+            claimed.add(order);
+        }
+        return claimed;
+    }
+
+    /**
+     * Resuelve las ventas que quedaron en proceso más tiempo del permitido (p. ej. por un reinicio o porque
+     * no se pudo guardar su estado final): si la venta llegó a registrarse se completan, si no se libera su
+     * reserva y se marcan como fallidas. Cada venta se reclama de forma atómica para que solo una instancia
+     * la resuelva.
+     */
+    public void recoverStale(Duration timeout) {
+        SaleOrder order;
+        while ((order = claimStale(timeout)) != null) {
+            try {
+                if (saleRepository.existsById(order.getId())) {
+                    complete(order);
+                } else {
+                    releaseAndFail(order, "El procesamiento de la venta fue interrumpido");
+                }
+                log.warn("Se resolvió la venta encolada {} interrumpida como {}", order.getId(), order.getStatus());
+            } catch (RuntimeException e) {
+                log.error("Error al resolver la venta encolada interrumpida {}: {}", order.getId(), e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Procesa un lote de ventas: el stock de todas se reserva con una sola petición al microservicio de
+     * productos, que aplica o rechaza cada venta por completo. Luego cada venta se resuelve por separado,
+     * de modo que un error en una no deja abandonadas las siguientes.
+     */
+    public void process(List<SaleOrder> orders) {
+        var reservations = orders.stream().map(SaleOrderService::reservationOf).toList();
+
+        List<StockReservationResult> results;
+        try {
+            results = saleService.reserveStock(reservations);
+        } catch (RuntimeException e) {
+            // No se sabe si productos aplicó el lote (p. ej. si la respuesta se perdió después del commit).
+            // Reintentar es seguro: con la misma clave productos devuelve el resultado original sin volver
+            // a descontar, y al agotar los intentos se libera lo que se haya podido reservar.
+            for (int i = 0; i < orders.size(); i++) {
+                var order = orders.get(i);
+                try {
+                    retryOrGiveUp(order);
+                } catch (RuntimeException ex) {
+                    log.error("Error al reprogramar la venta encolada {}: {}", order.getId(), ex.getMessage(), ex);
+                }
+            }
+            return;
+        }
+
+        for (int i = 0; i < orders.size(); i++) {
+            var order = orders.get(i);
+            try {
+                resolve(order, results.get(i));
+            } catch (RuntimeException e) {
+                // La venta queda en proceso y se resuelve con recoverStale
+                log.error("Error al procesar la venta encolada {}: {}", order.getId(), e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Crea los índices declarados en {@link SaleOrder}, usados por la consulta de {@link #claim(int)}.
+     */
+    public void ensureIndexes() {
+        var indexOperations = mongoTemplate.indexOps(SaleOrder.class);
+        new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext())
+                .resolveIndexFor(SaleOrder.class)
+                .forEach(indexOperations::ensureIndex);
+    }
+
+    private void resolve(SaleOrder order, StockReservationResult result) {
+        if (!result.isReserved()) {
+            fail(order, result.getError());
+            return;
+        }
+
+        // La venta se registra con el ID de la venta encolada para poder saber después si llegó a insertarse
+        var sale = new Sale();
+        saleService.applySale(order.getSale(), sale, result.getProducts());
+        sale.setId(order.getId());
+        try {
+            saleRepository.insert(sale);
+        } catch (RuntimeException e) {
+            log.error("Error al registrar la venta encolada {}: {}", order.getId(), e.getMessage(), e);
+            // El error pudo llegar después de que la venta se guardó
+            if (saleRepository.existsById(order.getId())) {
+                complete(order);
+            } else {
+                releaseAndFail(order, "Error al registrar la venta");
+            }
+            return;
+        }
+        complete(order);
+    }
+
+    private void retryOrGiveUp(SaleOrder order) {
+        order.setAttempts(order.getAttempts() + 1);
+        if (order.getAttempts() >= maxAttempts) {
+            releaseAndFail(order, "Error al reservar el stock de los productos");
+            return;
+        }
+        var now = Instant.now();
+        order.setStatus(SaleOrderStatus.PENDING);
+        order.setNotBefore(now.plus(retryDelay));
+        order.setUpdatedAt(now);
+        repository.save(order);
+    }
+
+    private void releaseAndFail(SaleOrder order, String error) {
+        if (saleService.releaseStock(List.of(reservationOf(order)))) {
+            fail(order, error);
+        } else {
+            fail(order, error + ", no se pudo liberar el stock reservado");
+        }
+    }
+
+    private SaleOrder claimStale(Duration timeout) {
+        var now = Instant.now();
+        return mongoTemplate.findAndModify(
+                query(where("status").is(SaleOrderStatus.PROCESSING).and("updatedAt").lt(now.minus(timeout))),
+                new Update().set("updatedAt", now),
+                FindAndModifyOptions.options().returnNew(true),
+                SaleOrder.class
+        );
+    }
+
+    private static StockReservation reservationOf(SaleOrder order) {
+        return StockReservation.from(order.getId(), order.getSale());
+    }
+
+    private void complete(SaleOrder order) {
+        order.setStatus(SaleOrderStatus.COMPLETED);
+        order.setSaleId(order.getId());
+        order.setUpdatedAt(Instant.now());
+        repository.save(order);
+    }
+
+    private void fail(SaleOrder order, String error) {
+        order.setStatus(SaleOrderStatus.FAILED);
+        order.setError(error);
+        order.setUpdatedAt(Instant.now());
+        repository.save(order);
+    }
+}
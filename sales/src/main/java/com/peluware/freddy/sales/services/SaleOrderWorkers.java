@@ -0,0 +1,107 @@
+package com.peluware.freddy.sales.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool acotado de workers que consumen la cola de ventas asíncronas.
+ */
+@Slf4j
+@Component
+public class SaleOrderWorkers implements SmartLifecycle {
+
+    private final SaleOrderService service;
+    private final int workers;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration processingTimeout;
+    private final Duration staleCheckInterval;
+    private final AtomicLong nextStaleCheck = new AtomicLong();
+
+    private ExecutorService executor;
+    private volatile boolean running;
+
+    public SaleOrderWorkers(
+            SaleOrderService service,
+            @Value("${sales.async.workers:4}") int workers,
+            @Value("${sales.async.batch-size:20}") int batchSize,
+            @Value("${sales.async.poll-interval:500ms}") Duration pollInterval,
+            @Value("${sales.async.processing-timeout:5m}") Duration processingTimeout,
+            @Value("${sales.async.stale-check-interval:1m}") Duration staleCheckInterval
+    ) {
+        this.service = service;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.processingTimeout = processingTimeout;
+        this.staleCheckInterval = staleCheckInterval;
+    }
+
+    @Override
+    public void start() {
+        service.ensureIndexes();
+        running = true;
+        executor = Executors.newFixedThreadPool(workers, Thread.ofPlatform().name("sale-order-worker-", 0).factory());
+        for (int i = 0; i < workers; i++) {
+            executor.submit(this::poll);
+        }
+    }
+
+    private void poll() {
+        while (running) {
+            try {
+                recoverStaleIfDue();
+                var orders = service.claim(batchSize);
+                if (orders.isEmpty()) {
+                    Thread.sleep(pollInterval);
+                } else {
+                    service.process(orders);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Error al procesar la cola de ventas: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Resuelve las ventas atascadas en proceso (p. ej. si no se pudo guardar su estado final).
+     * Solo uno de los workers realiza la verificación en cada intervalo.
+     */
+    private void recoverStaleIfDue() {
+        var now = System.currentTimeMillis();
+        var next = nextStaleCheck.get();
+        if (now >= next && nextStaleCheck.compareAndSet(next, now + staleCheckInterval.toMillis())) {
+            service.recoverStale(processingTimeout);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -6,18 +6,22 @@ import com.peluware.freddy.sales.models.Sale;
 import com.peluware.freddy.sales.models.SaleItem;
 import com.peluware.freddy.sales.repositories.SaleRepository;
 import com.peluware.freddy.sales.schemas.Product;
+import com.peluware.freddy.sales.schemas.StockReservation;
+import com.peluware.freddy.sales.schemas.StockReservationResult;
 import com.peluware.springframework.crud.mongo.MongoCrudService;
 import com.peluware.springframework.web.problemdetails.ProblemDetails;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestOperations;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 
@@ -39,60 +43,90 @@ public class SaleService implements MongoCrudService<Sale, SaleDto, String, Sale
             throw ProblemDetails.badRequest("No se puede modificar una venta creada");
         }
 
-        // Validar que no se repitan productos en la venta
+        validateDistinctProducts(dto);
+
+        // Reservar el stock de forma atómica en el microservicio de productos
+        var result = reserveStock(List.of(StockReservation.from(null, dto))).getFirst();
+        if (!result.isReserved()) {
+            throw ProblemDetails.badRequest(result.getError());
+        }
+
+        applySale(dto, model, result.getProducts());
+    }
+
+    /**
+     * Valida que no se repitan productos en la venta.
+     */
+    public void validateDistinctProducts(SaleDto dto) {
         if (dto.getItems().stream().map(SaleItemDto::getProductId).distinct().count() != dto.getItems().size()) {
             throw ProblemDetails.badRequest("No se pueden repetir productos en una venta");
         }
+    }
 
-        // Crear un mapa de productos con la cantidad solicitada para la venta
-        var products = dto.getItems().stream().collect(Collectors.toMap(
-                item -> getProduct(item.getProductId()),
-                SaleItemDto::getQuantity,
-                Integer::sum
-        ));
-
-        // Validar que haya suficiente stock para cada producto
-        products.forEach((product, quantity) -> {
-            if (product.getStock() < quantity) {
-                throw ProblemDetails.badRequest("No hay suficiente stock para el producto: " + product.getName());
-            }
-        });
-
-        // Crear los items de la venta y actualizar el stock de los productos
-        products.forEach((product, quantity) -> {
+    /**
+     * Crea los items de la venta con los productos cuyo stock ya fue reservado.
+     */
+    public void applySale(SaleDto dto, Sale model, List<Product> reservedProducts) {
+        var products = reservedProducts.stream().collect(Collectors.toMap(Product::getId, Function.identity()));
+        for (var item : dto.getItems()) {
+            var product = products.get(item.getProductId());
             model.getItems().add(new SaleItem(
                     product.getId(),
                     product.getPrice(),
-                    quantity
+                    item.getQuantity(),
+                    snapshotOf(product)
             ));
-            product.setStock(product.getStock() - quantity);
-            updateProduct(product);
-        });
+        }
 
-        model.setDate(Instant.now());
+        // Mongo guarda la fecha en milisegundos, se trunca para que la venta guardada sea igual a la leída
+        model.setDate(Instant.now().truncatedTo(ChronoUnit.MILLIS));
         model.setCustomerCi(dto.getCustomerCi());
         model.setIva(dto.getIva());
         model.setPaymentMethod(dto.getPaymentMethod());
     }
 
-    public Product getProduct(Long productId) {
+    /**
+     * Datos del producto que se guardan con la venta; el stock no forma parte de ella.
+     */
+    private static Product snapshotOf(Product product) {
+        var snapshot = new Product();
+        snapshot.setId(product.getId());
+        snapshot.setName(product.getName());
+        snapshot.setPrice(product.getPrice());
+        snapshot.setDescription(product.getDescription());
+        return snapshot;
+    }
+
+    /**
+     * Reserva el stock de un lote de ventas en una sola petición. El microservicio de productos aplica
+     * cada reserva completa o la rechaza, y devuelve un resultado por reserva en el mismo orden.
+     */
+    public List<StockReservationResult> reserveStock(List<StockReservation> reservations) {
         try {
-            return productMicroserviceRestOperations.getForObject("/products/{id}", Product.class, productId);
-        } catch (HttpServerErrorException e) {
-            if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
-                throw ProblemDetails.notFound("No se encontró el producto con ID: " + productId);
+            var results = productMicroserviceRestOperations.postForObject("/products/stock/reservations", reservations, StockReservationResult[].class);
+            if (results == null || results.length != reservations.size()) {
+                throw ProblemDetails.internalServerError("Respuesta inválida del microservicio de productos al reservar stock");
             }
-            log.error("Error al comunicarse con el microservicio de productos: {}", e.getMessage(), e);
-            throw ProblemDetails.internalServerError("Error al comunicarse con el microservicio de productos");
+            return List.of(results);
+        } catch (RestClientException e) {
+            log.error("Error al reservar el stock de los productos: {}", e.getMessage(), e);
+            throw ProblemDetails.internalServerError("Error al reservar el stock de los productos");
         }
     }
 
-    public void updateProduct(Product product) {
+    /**
+     * Devuelve al stock las cantidades de reservas con clave que no llegaron a registrarse como venta.
+     * Productos ignora las claves que no reservó o que ya liberó, por lo que se puede repetir.
+     *
+     * @return si productos confirmó la liberación
+     */
+    public boolean releaseStock(List<StockReservation> reservations) {
         try {
-            productMicroserviceRestOperations.put("/products/{id}", product, product.getId());
-        } catch (Exception e) {
-            log.error("Error al actualizar el stock del producto: {}", e.getMessage(), e);
-            throw ProblemDetails.internalServerError("Error al actualizar el stock del producto: " + product.getName());
+            productMicroserviceRestOperations.postForLocation("/products/stock/releases", reservations);
+            return true;
+        } catch (RestClientException e) {
+            log.error("Error al liberar el stock reservado {}: {}", reservations, e.getMessage(), e);
+            return false;
         }
     }
 
@@ -0,0 +1,107 @@
+package com.peluware.freddy.sales.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.peluware.freddy.sales.models.Sale;
+import com.peluware.freddy.sales.models.SaleItem;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Cache de respuestas JSON ya serializadas de las ventas. Una venta no se modifica después de
+ * creada y guarda los datos de sus productos, por lo que sus bytes (y su ETag) no cambian. Sí puede
+ * eliminarse: la entrada se descarta al borrarla en esta instancia, y la expiración acota cuánto puede
+ * seguir sirviéndose una venta borrada desde otra instancia. El límite es el tamaño total de los bytes
+ * almacenados.
+ * <p>
+ * Las ventas anteriores a guardar los datos de los productos no se cachean: su respuesta depende del
+ * producto actual.
+ */
+@Slf4j
+@Component
+public class SaleResponseCache extends AbstractMongoEventListener<Sale> {
+
+    /**
+     * Las ventas pueden eliminarse: los clientes deben revalidar, pero con el ETag fuerte obtienen un 304 sin cuerpo.
+     */
+    public static final String CACHE_CONTROL = "no-cache";
+
+    private final Cache<String, CachedResponse> cache;
+    private final ObjectMapper objectMapper;
+
+    public SaleResponseCache(
+            ObjectMapper objectMapper,
+            @Value("${sales.response-cache.max-size:64MB}") DataSize maxSize,
+            @Value("${sales.response-cache.ttl:10m}") Duration ttl
+    ) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String id, CachedResponse response) -> response.body().length)
+                .expireAfterWrite(ttl)
+                .build();
+        this.objectMapper = objectMapper;
+    }
+
+    public CachedResponse get(String id) {
+        return cache.getIfPresent(id);
+    }
+
+    public void evict(String id) {
+        cache.invalidate(id);
+    }
+
+    /**
+     * Serializa y cachea la venta; devuelve {@code null} si no se puede cachear.
+     */
+    public CachedResponse put(Sale sale) {
+        if (sale.getId() == null || !sale.getItems().stream().allMatch(SaleItem::hasProductSnapshot)) {
+            return null;
+        }
+        try {
+            var body = objectMapper.writeValueAsBytes(sale);
+            var response = new CachedResponse(body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+            cache.put(sale.getId(), response);
+            return response;
+        } catch (JsonProcessingException e) {
+            log.warn("No se pudo serializar la venta {} para la cache: {}", sale.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Cachea la respuesta de la venta en cuanto se inserta, antes de la primera lectura. Solo usa los
+     * datos guardados, sin consultar al microservicio de productos.
+     */
+    @Override
+    public void onAfterSave(AfterSaveEvent<Sale> event) {
+        put(event.getSource());
+    }
+
+    /**
+     * Descarta la respuesta de la venta eliminada. Si el borrado fue por criterio y no por ID no se
+     * sabe qué ventas se eliminaron, así que se descarta toda la cache.
+     */
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Sale> event) {
+        var id = event.getSource().get("_id");
+        if (id instanceof ObjectId || id instanceof String) {
+            evict(id.toString());
+        } else {
+            cache.invalidateAll();
+        }
+    }
+
+    public record CachedResponse(byte[] body, String etag) {
+    }
+}
@@ -0,0 +1,58 @@
+package com.peluware.freddy.sales;
+
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.peluware.freddy.sales.schemas.StockItem;
+import com.peluware.freddy.sales.schemas.StockReservation;
+import com.peluware.freddy.sales.schemas.StockReservationResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+/**
+ * El cliente del microservicio de productos debe preferir Smile tanto en el Accept como en los cuerpos enviados.
+ */
+class AppConfigTests {
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    private final SmileMapper smileMapper = new SmileMapper();
+
+    @Test
+    void productClientAdvertisesSmileBeforeJsonAndSendsSmileBodies() throws Exception {
+        var restOperations = (RestTemplate) new AppConfig(null).productMicroserviceRestOperations(
+                new RestTemplateBuilder(), new Jackson2ObjectMapperBuilder(), "http://products");
+        var server = MockRestServiceServer.bindTo(restOperations).build();
+
+        var reservation = new StockReservation("order-1", List.of(new StockItem(1L, 2)));
+        var result = new StockReservationResult(false, "sin stock", List.of());
+
+        server.expect(requestTo("http://products/products/stock/reservations"))
+                .andExpect(header("Content-Type", SMILE.toString()))
+                .andExpect(request -> {
+                    var accept = request.getHeaders().getAccept();
+                    assertTrue(accept.indexOf(SMILE) >= 0, "Debe aceptar Smile");
+                    assertTrue(accept.indexOf(SMILE) < accept.indexOf(MediaType.APPLICATION_JSON), "Smile debe anunciarse antes que JSON");
+
+                    var body = ((MockClientHttpRequest) request).getBodyAsBytes();
+                    var sent = smileMapper.readValue(body, StockReservation[].class);
+                    assertEquals(reservation, sent[0]);
+                })
+                .andRespond(withSuccess(smileMapper.writeValueAsBytes(List.of(result)), SMILE));
+
+        var response = restOperations.postForObject("/products/stock/reservations", List.of(reservation), StockReservationResult[].class);
+
+        server.verify();
+        assertNotNull(response);
+        assertEquals(result, response[0]);
+    }
+}
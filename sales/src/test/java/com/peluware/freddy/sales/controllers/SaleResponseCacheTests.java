@@ -0,0 +1,144 @@
+package com.peluware.freddy.sales.controllers;
+
+import com.mongodb.client.model.Filters;
+import com.peluware.freddy.sales.models.Sale;
+import com.peluware.freddy.sales.models.SaleItem;
+import com.peluware.freddy.sales.repositories.SaleRepository;
+import com.peluware.freddy.sales.schemas.PaymentMethod;
+import com.peluware.freddy.sales.schemas.Product;
+import com.peluware.freddy.sales.utils.SaleResponseCache;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * {@code GET /sales/{id}} con la cache de respuestas, contra un Mongo local. El microservicio de
+ * productos no está disponible: las ventas se sirven solo con los datos guardados.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest
+@AutoConfigureMockMvc
+class SaleResponseCacheTests {
+
+    @Container
+    static final MongoDBContainer mongo = new MongoDBContainer("mongo:7");
+
+    @DynamicPropertySource
+    static void mongo(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> mongo.getReplicaSetUrl("sales"));
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SaleResponseCache cache;
+
+    @Test
+    void hitIsServedFromCachedBytesWithoutReadingMongo() throws Exception {
+        var sale = saleRepository.insert(sale());
+        var cached = cache.get(sale.getId());
+        assertNotNull(cached, "La venta se cachea al insertarla");
+
+        // Borrado directo en la colección, sin eventos: si la lectura fuera a Mongo respondería 404
+        mongoTemplate.getCollection("sales").deleteOne(Filters.eq("_id", new ObjectId(sale.getId())));
+
+        var body = mockMvc.perform(get("/sales/{id}", sale.getId()).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, cached.etag()))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, SaleResponseCache.CACHE_CONTROL))
+                .andExpect(jsonPath("$.items[0].product.name").value("Producto 1"))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertArrayEquals(cached.body(), body);
+    }
+
+    @Test
+    void matchingIfNoneMatchReturnsNotModified() throws Exception {
+        var sale = saleRepository.insert(sale());
+        var etag = cache.get(sale.getId()).etag();
+
+        mockMvc.perform(get("/sales/{id}", sale.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void missIsReadFromMongoWithTheSameETag() throws Exception {
+        var sale = saleRepository.insert(sale());
+        var etag = cache.get(sale.getId()).etag();
+        cache.evict(sale.getId());
+
+        // La venta leída de Mongo se serializa igual que la insertada: el ETag no cambia
+        mockMvc.perform(get("/sales/{id}", sale.getId()).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, SaleResponseCache.CACHE_CONTROL));
+
+        assertEquals(etag, cache.get(sale.getId()).etag());
+    }
+
+    @Test
+    void deleteEvictsCachedResponse() throws Exception {
+        var sale = saleRepository.insert(sale());
+
+        mockMvc.perform(delete("/sales/{id}", sale.getId()))
+                .andExpect(status().is2xxSuccessful());
+
+        mockMvc.perform(get("/sales/{id}", sale.getId()).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().is4xxClientError());
+    }
+
+    @Test
+    void nonJsonAcceptFallsThroughToNormalNegotiation() throws Exception {
+        var sale = saleRepository.insert(sale());
+
+        mockMvc.perform(get("/sales/{id}", sale.getId()).accept(MediaType.APPLICATION_XML))
+                .andExpect(status().isNotAcceptable())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    private static Sale sale() {
+        var product = new Product();
+        product.setId(1L);
+        product.setName("Producto 1");
+        product.setPrice(new BigDecimal("10.00"));
+
+        var sale = new Sale();
+        sale.setDate(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        sale.setCustomerCi("0102030405");
+        sale.setIva(new BigDecimal("15"));
+        sale.setPaymentMethod(PaymentMethod.CASH);
+        sale.setItems(List.of(new SaleItem(1L, product.getPrice(), 2, product)));
+        return sale;
+    }
+}
@@ -0,0 +1,76 @@
+package com.peluware.freddy.sales.schemas;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.stream.LongStream;
+
+/**
+ * Compara tamaño de payload y costo de (de)serialización entre JSON y Smile para el esquema de producto.
+ * Mide tiempo de reloj (ns/op) en un solo hilo, no tiempo de CPU, por lo que los valores son
+ * orientativos y dependen de la carga de la máquina.
+ * Se excluye de la ejecución normal; para correrlo: {@code mvn test -Pbenchmark}.
+ */
+@Slf4j
+@Tag("benchmark")
+class ProductWireFormatBenchmarkTests {
+
+    private static final int WARMUP_ITERATIONS = 2_000;
+    private static final int MEASURED_ITERATIONS = 10_000;
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * Acumula los resultados para que el JIT no elimine el trabajo medido.
+     */
+    private static volatile long sink;
+
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private final ObjectMapper smileMapper = new SmileMapper();
+
+    @Test
+    void singleProduct() throws Exception {
+        compare("producto individual", product(1L), Product.class, MEASURED_ITERATIONS);
+    }
+
+    @Test
+    void batchOfProducts() throws Exception {
+        compare("lote de " + BATCH_SIZE + " productos", LongStream.rangeClosed(1, BATCH_SIZE).mapToObj(ProductWireFormatBenchmarkTests::product).toArray(Product[]::new), Product[].class, MEASURED_ITERATIONS / 100);
+    }
+
+    private <T> void compare(String label, T value, Class<T> type, int iterations) throws Exception {
+        var json = jsonMapper.writeValueAsBytes(value);
+        var smile = smileMapper.writeValueAsBytes(value);
+
+        log.info("{} -> tamaño JSON: {} B, Smile: {} B ({}%)", label, json.length, smile.length, smile.length * 100 / json.length);
+        log.info("{} -> JSON  escritura: {} ns/op, lectura: {} ns/op", label, timeWrite(jsonMapper, value, iterations), timeRead(jsonMapper, json, type, iterations));
+        log.info("{} -> Smile escritura: {} ns/op, lectura: {} ns/op", label, timeWrite(smileMapper, value, iterations), timeRead(smileMapper, smile, type, iterations));
+    }
+
+    private static long timeWrite(ObjectMapper mapper, Object value, int iterations) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) sink += mapper.writeValueAsBytes(value).length;
+        var start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) sink += mapper.writeValueAsBytes(value).length;
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    private static long timeRead(ObjectMapper mapper, byte[] payload, Class<?> type, int iterations) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) sink += mapper.readValue(payload, type).hashCode();
+        var start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) sink += mapper.readValue(payload, type).hashCode();
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    private static Product product(long id) {
+        var product = new Product();
+        product.setId(id);
+        product.setName("Producto " + id);
+        product.setPrice(new BigDecimal("1234.56").add(BigDecimal.valueOf(id)));
+        product.setDescription("Descripción del producto " + id + " utilizada para comparar formatos de transporte");
+        product.setStock((int) (id * 7 % 1000));
+        return product;
+    }
+}
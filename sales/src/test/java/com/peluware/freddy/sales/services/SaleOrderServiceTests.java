@@ -0,0 +1,179 @@
+package com.peluware.freddy.sales.services;
+
+import com.peluware.freddy.sales.dto.SaleDto;
+import com.peluware.freddy.sales.models.Sale;
+import com.peluware.freddy.sales.models.SaleOrder;
+import com.peluware.freddy.sales.repositories.SaleOrderRepository;
+import com.peluware.freddy.sales.repositories.SaleRepository;
+import com.peluware.freddy.sales.schemas.SaleOrderStatus;
+import com.peluware.freddy.sales.schemas.StockReservation;
+import com.peluware.freddy.sales.schemas.StockReservationResult;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestOperations;
+
+import java.time.Duration;
+import java.util.List;
+
+import static com.peluware.freddy.sales.services.SaleServiceTests.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SaleOrderServiceTests {
+
+    private static final String RESERVATIONS = "/products/stock/reservations";
+    private static final String RELEASES = "/products/stock/releases";
+
+    private final RestOperations restOperations = mock(RestOperations.class);
+    private final SaleRepository saleRepository = mock(SaleRepository.class);
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final SaleService saleService = new SaleService(saleRepository, mongoTemplate, restOperations);
+    private final SaleOrderRepository repository = mock(SaleOrderRepository.class);
+    private final SaleOrderService service = new SaleOrderService(repository, saleRepository, saleService, mongoTemplate, 3, Duration.ofSeconds(5));
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reservesWholeBatchInOneRequestAndResolvesEachOrder() {
+        var accepted = order("a", sale(item(1L, 2), item(2L, 1)));
+        var rejected = order("b", sale(item(1L, 50)));
+        when(restOperations.postForObject(eq(RESERVATIONS), any(), eq(StockReservationResult[].class))).thenReturn(new StockReservationResult[]{
+                reserved(product(1L, "10.00"), product(2L, "3.00")),
+                new StockReservationResult(false, "No hay suficiente stock para el producto: Producto 1", List.of())
+        });
+        when(saleRepository.insert(any(Sale.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service.process(List.of(accepted, rejected));
+
+        var captor = ArgumentCaptor.forClass(List.class);
+        verify(restOperations, times(1)).postForObject(eq(RESERVATIONS), captor.capture(), eq(StockReservationResult[].class));
+        List<StockReservation> reservations = captor.getValue();
+        assertEquals(2, reservations.size());
+        assertEquals("a", reservations.get(0).getKey());
+        assertEquals("b", reservations.get(1).getKey());
+        assertEquals(2, reservations.get(0).getItems().size());
+        assertEquals(50, reservations.get(1).getItems().getFirst().getQuantity());
+
+        var saleCaptor = ArgumentCaptor.forClass(Sale.class);
+        verify(saleRepository, times(1)).insert(saleCaptor.capture());
+        assertEquals(2, saleCaptor.getValue().getItems().size());
+        assertEquals("a", saleCaptor.getValue().getId());
+
+        assertEquals(SaleOrderStatus.COMPLETED, accepted.getStatus());
+        assertEquals("a", accepted.getSaleId());
+        assertEquals(SaleOrderStatus.FAILED, rejected.getStatus());
+        assertEquals("No hay suficiente stock para el producto: Producto 1", rejected.getError());
+        assertNull(rejected.getSaleId());
+    }
+
+    @Test
+    void requeuesBatchWithSameKeysWhenReservationOutcomeIsUnknown() {
+        var first = order("a", sale(item(1L, 1)));
+        var second = order("b", sale(item(2L, 1)));
+        when(restOperations.postForObject(eq(RESERVATIONS), any(), eq(StockReservationResult[].class)))
+                .thenThrow(new ResourceAccessException("Read timed out"));
+
+        service.process(List.of(first, second));
+
+        for (var order : List.of(first, second)) {
+            assertEquals(SaleOrderStatus.PENDING, order.getStatus());
+            assertEquals(1, order.getAttempts());
+            assertNotNull(order.getNotBefore());
+            verify(repository).save(order);
+        }
+        verifyNoInteractions(saleRepository);
+        verify(restOperations, never()).postForLocation(eq(RELEASES), any());
+    }
+
+    @Test
+    void releasesByKeyAndFailsWhenReservationAttemptsAreExhausted() {
+        var order = order("a", sale(item(1L, 1)));
+        order.setAttempts(2);
+        when(restOperations.postForObject(eq(RESERVATIONS), any(), eq(StockReservationResult[].class)))
+                .thenThrow(new ResourceAccessException("Read timed out"));
+
+        service.process(List.of(order));
+
+        assertEquals(SaleOrderStatus.FAILED, order.getStatus());
+        assertEquals("Error al reservar el stock de los productos", order.getError());
+        assertEquals(List.of(StockReservation.from("a", order.getSale())), releasedReservations());
+    }
+
+    @Test
+    void releasesReservedStockWhenSaleCannotBeInserted() {
+        var order = order("a", sale(item(1L, 2), item(2L, 3)));
+        when(restOperations.postForObject(eq(RESERVATIONS), any(), eq(StockReservationResult[].class)))
+                .thenReturn(new StockReservationResult[]{reserved(product(1L, "10.00"), product(2L, "3.00"))});
+        when(saleRepository.insert(any(Sale.class))).thenThrow(new DataAccessResourceFailureException("Mongo no disponible"));
+
+        service.process(List.of(order));
+
+        assertEquals(List.of(StockReservation.from("a", order.getSale())), releasedReservations());
+        assertEquals(SaleOrderStatus.FAILED, order.getStatus());
+    }
+
+    @Test
+    void completesWithoutReleasingWhenInsertFailedAfterSaleWasStored() {
+        var order = order("a", sale(item(1L, 2)));
+        when(restOperations.postForObject(eq(RESERVATIONS), any(), eq(StockReservationResult[].class)))
+                .thenReturn(new StockReservationResult[]{reserved(product(1L, "10.00"))});
+        when(saleRepository.insert(any(Sale.class))).thenThrow(new DataAccessResourceFailureException("Timeout"));
+        when(saleRepository.existsById("a")).thenReturn(true);
+
+        service.process(List.of(order));
+
+        assertEquals(SaleOrderStatus.COMPLETED, order.getStatus());
+        verify(restOperations, never()).postForLocation(eq(RELEASES), any());
+    }
+
+    @Test
+    void failureToSaveOneOrderDoesNotAbandonTheRest() {
+        var first = order("a", sale(item(1L, 1)));
+        var second = order("b", sale(item(2L, 1)));
+        when(restOperations.postForObject(eq(RESERVATIONS), any(), eq(StockReservationResult[].class))).thenReturn(new StockReservationResult[]{
+                reserved(product(1L, "10.00")),
+                reserved(product(2L, "3.00"))
+        });
+        when(saleRepository.insert(any(Sale.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(repository.save(first)).thenThrow(new DataAccessResourceFailureException("Mongo no disponible"));
+
+        service.process(List.of(first, second));
+
+        verify(saleRepository, times(2)).insert(any(Sale.class));
+        verify(repository).save(second);
+        assertEquals(SaleOrderStatus.COMPLETED, second.getStatus());
+    }
+
+    @Test
+    void recoversStaleOrdersBySaleExistence() {
+        var stored = order("a", sale(item(1L, 1)));
+        var lost = order("b", sale(item(2L, 1)));
+        when(mongoTemplate.findAndModify(any(), any(), any(), eq(SaleOrder.class))).thenReturn(stored, lost, null);
+        when(saleRepository.existsById("a")).thenReturn(true);
+
+        service.recoverStale(Duration.ofMinutes(5));
+
+        assertEquals(SaleOrderStatus.COMPLETED, stored.getStatus());
+        assertEquals("a", stored.getSaleId());
+        assertEquals(SaleOrderStatus.FAILED, lost.getStatus());
+        assertEquals(List.of(StockReservation.from("b", lost.getSale())), releasedReservations());
+    }
+
+    private Object releasedReservations() {
+        var captor = ArgumentCaptor.forClass(Object.class);
+        verify(restOperations).postForLocation(eq(RELEASES), captor.capture());
+        return captor.getValue();
+    }
+
+    private static SaleOrder order(String id, SaleDto dto) {
+        var order = new SaleOrder();
+        order.setId(id);
+        order.setSale(dto);
+        order.setStatus(SaleOrderStatus.PROCESSING);
+        return order;
+    }
+}
@@ -0,0 +1,117 @@
+package com.peluware.freddy.sales.services;
+
+import com.peluware.freddy.sales.dto.SaleDto;
+import com.peluware.freddy.sales.dto.SaleItemDto;
+import com.peluware.freddy.sales.models.Sale;
+import com.peluware.freddy.sales.repositories.SaleRepository;
+import com.peluware.freddy.sales.schemas.PaymentMethod;
+import com.peluware.freddy.sales.schemas.Product;
+import com.peluware.freddy.sales.schemas.StockReservation;
+import com.peluware.freddy.sales.schemas.StockReservationResult;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.web.client.RestOperations;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SaleServiceTests {
+
+    private static final String RESERVATIONS = "/products/stock/reservations";
+
+    private final RestOperations restOperations = mock(RestOperations.class);
+    private final SaleService service = new SaleService(mock(SaleRepository.class), mock(MongoTemplate.class), restOperations);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void mapModelReservesStockAndBuildsItems() {
+        when(restOperations.postForObject(eq(RESERVATIONS), any(), eq(StockReservationResult[].class)))
+                .thenReturn(new StockReservationResult[]{reserved(product(1L, "10.00"), product(2L, "2.50"))});
+
+        var sale = new Sale();
+        service.mapModel(sale(item(1L, 2), item(2L, 4)), sale);
+
+        var captor = ArgumentCaptor.forClass(List.class);
+        verify(restOperations).postForObject(eq(RESERVATIONS), captor.capture(), eq(StockReservationResult[].class));
+        var reservation = (StockReservation) captor.getValue().getFirst();
+        assertEquals(2, reservation.getItems().size());
+        assertEquals(4, reservation.getItems().get(1).getQuantity());
+
+        assertEquals(2, sale.getItems().size());
+        assertEquals(new BigDecimal("20.00"), sale.getItems().get(0).getSubTotal());
+        assertEquals(new BigDecimal("10.00"), sale.getItems().get(1).getSubTotal());
+        assertEquals(new BigDecimal("30.00"), sale.getTotal());
+        assertNotNull(sale.getDate());
+    }
+
+    @Test
+    void mapModelFailsWhenReservationIsRejected() {
+        when(restOperations.postForObject(eq(RESERVATIONS), any(), eq(StockReservationResult[].class)))
+                .thenReturn(new StockReservationResult[]{new StockReservationResult(false, "No hay suficiente stock", List.of())});
+
+        var sale = new Sale();
+        assertThrows(RuntimeException.class, () -> service.mapModel(sale(item(1L, 2)), sale));
+        assertTrue(sale.getItems().isEmpty());
+    }
+
+    @Test
+    void mapModelRejectsRepeatedProductsWithoutReserving() {
+        assertThrows(RuntimeException.class, () -> service.mapModel(sale(item(1L, 2), item(1L, 1)), new Sale()));
+        verifyNoInteractions(restOperations);
+    }
+
+    @Test
+    void mapModelRejectsModifyingExistingSale() {
+        var sale = new Sale();
+        sale.setId("existing");
+        assertThrows(RuntimeException.class, () -> service.mapModel(sale(item(1L, 2)), sale));
+        verifyNoInteractions(restOperations);
+    }
+
+    @Test
+    void applySaleUsesReservedProductPricesInItemOrder() {
+        var sale = new Sale();
+        service.applySale(sale(item(2L, 1), item(1L, 3)), sale, List.of(product(1L, "1.00"), product(2L, "5.00")));
+
+        assertEquals(2L, sale.getItems().get(0).getProductId());
+        assertEquals(new BigDecimal("5.00"), sale.getItems().get(0).getPrice());
+        assertEquals(1L, sale.getItems().get(1).getProductId());
+        assertEquals(3, sale.getItems().get(1).getQuantity());
+        assertEquals(PaymentMethod.CASH, sale.getPaymentMethod());
+    }
+
+    static SaleDto sale(SaleItemDto... items) {
+        var dto = new SaleDto();
+        dto.setCustomerCi("1710034065");
+        dto.setItems(List.of(items));
+        dto.setIva(new BigDecimal("15"));
+        dto.setPaymentMethod(PaymentMethod.CASH);
+        return dto;
+    }
+
+    static SaleItemDto item(Long productId, int quantity) {
+        var item = new SaleItemDto();
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    static Product product(Long id, String price) {
+        var product = new Product();
+        product.setId(id);
+        product.setName("Producto " + id);
+        product.setPrice(new BigDecimal(price));
+        product.setStock(100);
+        return product;
+    }
+
+    static StockReservationResult reserved(Product... products) {
+        return new StockReservationResult(true, null, List.of(products));
+    }
+}